@@ -14,6 +14,7 @@ import com.ambillion.api.util.ApplicationTimestampSerializer;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
 
 @Configuration
 public class JsonFormatterConfig {
@@ -32,7 +33,8 @@ public class JsonFormatterConfig {
 	Jackson2ObjectMapperBuilderCustomizer customizeObjectMapper() {
 
 		return builder -> {
-			builder.modules(new JavaTimeModule(), customDoubleSerializerModule());
+			// Blackbird replaces reflective accessors with generated lambdas
+			builder.modules(new JavaTimeModule(), new BlackbirdModule(), customDoubleSerializerModule());
 			builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
 			builder.timeZone(TimeZone.getDefault());
 			builder.simpleDateFormat(ApplicationConstants.DATE_FORMATTER);
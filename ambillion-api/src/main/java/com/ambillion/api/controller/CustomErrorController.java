@@ -1,24 +1,36 @@
 package com.ambillion.api.controller;
 
+import javax.servlet.RequestDispatcher;
 import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.servlet.error.ErrorController;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import com.ambillion.api.exception.ApplicationException;
+import com.ambillion.api.execeptionhandler.ProblemResponseFactory;
+
 @Controller
 public class CustomErrorController implements ErrorController {
 
+	@Autowired
+	private ProblemResponseFactory problemResponseFactory;
+
 	@RequestMapping("/error")
-	public ResponseEntity<CustomErrorResponse> handleError(final HttpServletRequest request) {
+	public ResponseEntity<Object> handleError(final HttpServletRequest request) {
+
+		final String requestUri = (String) request.getAttribute(RequestDispatcher.ERROR_REQUEST_URI);
+		if (request.getAttribute(RequestDispatcher.ERROR_EXCEPTION) instanceof final ApplicationException ex) {
+			return problemResponseFactory.create(ex.getErrorType(), ex.getMessage(), requestUri);
+		}
 
-		final Object status = request.getAttribute("javax.servlet.error.status_code");
-		final HttpStatus httpStatus = status != null ? HttpStatus.valueOf(Integer.parseInt(status.toString())) : HttpStatus.INTERNAL_SERVER_ERROR;
+		final Object status = request.getAttribute(RequestDispatcher.ERROR_STATUS_CODE);
+		final HttpStatus httpStatus = status != null ? HttpStatus.resolve(Integer.parseInt(status.toString())) : null;
 
-		final CustomErrorResponse errorResponse = new CustomErrorResponse(httpStatus.value(), httpStatus.getReasonPhrase());
-		return new ResponseEntity<>(errorResponse, httpStatus);
+		return problemResponseFactory.create(httpStatus != null ? httpStatus : HttpStatus.INTERNAL_SERVER_ERROR, null, requestUri);
 	}
 
 	public String getErrorPath() {
@@ -26,36 +38,3 @@ public class CustomErrorController implements ErrorController {
 		return "/error";
 	}
 }
-
-class CustomErrorResponse {
-
-	private int status;
-	private String error;
-
-	public CustomErrorResponse(final int status, final String error) {
-
-		this.status = status;
-		this.error = error;
-	}
-
-	// Getters and setters
-	public int getStatus() {
-
-		return status;
-	}
-
-	public void setStatus(final int status) {
-
-		this.status = status;
-	}
-
-	public String getError() {
-
-		return error;
-	}
-
-	public void setError(final String error) {
-
-		this.error = error;
-	}
-}
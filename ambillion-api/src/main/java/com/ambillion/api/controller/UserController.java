@@ -1,31 +1,44 @@
 package com.ambillion.api.controller;
 
 import java.util.List;
-import java.util.Optional;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.ambillion.api.dto.AuditEventResponse;
+import com.ambillion.api.dto.UserResponse;
 import com.ambillion.api.entity.User;
 import com.ambillion.api.enums.Role;
+import com.ambillion.api.exception.InvalidCredentialsException;
+import com.ambillion.api.exception.InvalidRequestException;
+import com.ambillion.api.exception.ResourceNotFoundException;
+import com.ambillion.api.service.IdempotencyService;
+import com.ambillion.api.service.UserEventService;
 import com.ambillion.api.service.UserService;
 import com.ambillion.api.util.ApplicationURIConstants;
-import com.ambillion.api.util.ApplicationViews;
 import com.ambillion.api.util.ServiceRegistry;
-import com.fasterxml.jackson.annotation.JsonView;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @RestController
@@ -33,6 +46,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "User", description = "User Management APIs")
 public class UserController extends BaseController {
 
+	private static final int MAX_PAGE_SIZE = 100;
+	private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+	private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
 	@Autowired
 	private ServiceRegistry serviceRegistry;
 
@@ -41,53 +58,83 @@ public class UserController extends BaseController {
 		return serviceRegistry.getUserService();
 	}
 
+	private UserEventService getUserEventService() {
+
+		return serviceRegistry.getUserEventService();
+	}
+
+	private IdempotencyService getIdempotencyService() {
+
+		return serviceRegistry.getIdempotencyService();
+	}
+
 	@GetMapping
 	@Operation(summary = "Get all users", description = "Retrieve a list of all users")
-	@JsonView(ApplicationViews.DTOView.class)
-	public List<User> getAllUsers() {
+	public List<UserResponse> getAllUsers() {
 
 		return getUserService().getAllUsers();
 	}
 
 	@GetMapping(ID_PARAMATER_API)
 	@Operation(summary = "Get user by ID", description = "Retrieve a user by their ID")
-	public ResponseEntity<User> getUserById(@Parameter(description = "ID of the user to be retrieved") @PathVariable final Long id) {
+	public ResponseEntity<UserResponse> getUserById(@Parameter(description = "ID of the user to be retrieved") @PathVariable final Long id) {
 
-		return getUserService().getUserById(id).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+		return getUserService().getUserById(id).map(UserResponse::from).map(ResponseEntity::ok)
+				.orElseThrow(() -> new ResourceNotFoundException("User with ID " + id + " not found"));
 	}
 
 	@PostMapping(USERREGISTER_API)
-	@Operation(summary = "Register manufacturer", description = "Register a new manufacturer")
-	@JsonView(ApplicationViews.DTOView.class)
-	public ResponseEntity<User> registerManufacturer(@Valid @RequestBody final User user) {
+	@Operation(summary = "Register manufacturer", description = "Register a new manufacturer. Retries with the same Idempotency-Key replay the first response")
+	@ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = UserResponse.class)))
+	public ResponseEntity<String> registerManufacturer(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) final String idempotencyKey,
+			@Valid @RequestBody final User user, final HttpServletRequest request) {
 
-		return ResponseEntity.ok(getUserService().registerManufacturer(user));
+		return getIdempotencyService().execute(idempotencyKey, request, user, () -> UserResponse.from(getUserService().registerManufacturer(user)));
 	}
 
 	@PostMapping(ADDAGENT_API)
-	@Operation(summary = "Add agent", description = "Add a new origin or destination agent")
-	@JsonView(ApplicationViews.DTOView.class)
-	public ResponseEntity<User> addAgent(@Valid @RequestBody final User user, @RequestParam final Role role, @RequestParam final String country) {
-
-		if (role == Role.ORIGIN_AGENT || role == Role.DESTINATION_AGENT) {
-			return ResponseEntity.ok(getUserService().addAgent(user, role, country));
-		} else {
-			return ResponseEntity.badRequest().build();
+	@Operation(summary = "Add agent", description = "Add a new origin or destination agent. Retries with the same Idempotency-Key replay the first response")
+	@ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = UserResponse.class)))
+	public ResponseEntity<String> addAgent(@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) final String idempotencyKey,
+			@Valid @RequestBody final User user, @RequestParam final Role role, @RequestParam final String country, final HttpServletRequest request) {
+
+		if (role != Role.ORIGIN_AGENT && role != Role.DESTINATION_AGENT) {
+			throw new InvalidRequestException("Role must be " + Role.ORIGIN_AGENT + " or " + Role.DESTINATION_AGENT);
 		}
+		return getIdempotencyService().execute(idempotencyKey, request, user, () -> UserResponse.from(getUserService().addAgent(user, role, country)));
 	}
 
 	@PutMapping(ID_PARAMATER_API)
 	@Operation(summary = "Update user", description = "Update an existing user")
-	@JsonView(ApplicationViews.DTOView.class)
-	public ResponseEntity<User> updateUser(@Parameter(description = "ID of the user to be updated") @PathVariable final Long id,
+	public ResponseEntity<UserResponse> updateUser(@Parameter(description = "ID of the user to be updated") @PathVariable final Long id,
 			@Valid @RequestBody final User user) {
 
-		if (getUserService().getUserById(id).isPresent()) {
-			user.setId(id);
-			return ResponseEntity.ok(getUserService().saveUser(user));
-		} else {
-			return ResponseEntity.notFound().build();
-		}
+		final User existingUser = getUserService().getUserById(id).orElseThrow(() -> new ResourceNotFoundException("User with ID " + id + " not found"));
+		user.setId(id);
+		return ResponseEntity.ok(UserResponse.from(getUserService().updateUser(existingUser, user)));
+	}
+
+	@GetMapping(AUDIT_USER_API)
+	@Operation(summary = "Get user audit trail", description = "Retrieve the audit events of a user, newest first")
+	public Page<AuditEventResponse> getUserAuditTrail(@Parameter(description = "ID of the user") @PathVariable final Long userId,
+			@RequestParam(defaultValue = "0") final int page, @RequestParam(defaultValue = "20") final int size) {
+
+		return getUserService().getUserAuditTrail(userId, PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE))));
+	}
+
+	@GetMapping(value = EVENTS_API, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@Operation(summary = "Stream user events", description = "Server-Sent Events stream of registrations and status changes of all users")
+	public SseEmitter streamUserEvents(@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) final Long lastEventId) {
+
+		return getUserEventService().subscribe(null, lastEventId);
+	}
+
+	@GetMapping(value = USER_EVENTS_API, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@Operation(summary = "Stream events of a user", description = "Server-Sent Events stream of status changes of a single user")
+	public SseEmitter streamUserEvents(@Parameter(description = "ID of the user") @PathVariable final Long userId,
+			@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) final Long lastEventId) {
+
+		return getUserEventService().subscribe(userId, lastEventId);
 	}
 
 	@PutMapping(APPROVE_USER_API)
@@ -108,10 +155,11 @@ public class UserController extends BaseController {
 
 	@PostMapping(LOGIN_API)
 	@Operation(summary = "Login user", description = "Login a user with email and password")
-	public ResponseEntity<User> loginUser(@RequestParam final String email, @RequestParam final String password) {
+	public ResponseEntity<UserResponse> loginUser(@RequestParam final String email, @RequestParam final String password) {
 
-		final Optional<User> user = getUserService().loginUser(email, password);
-		return user.map(ResponseEntity::ok).orElse(ResponseEntity.badRequest().build());
+		final User user = getUserService().loginUser(email, password)
+				.orElseThrow(() -> new InvalidCredentialsException("Email or password is incorrect"));
+		return ResponseEntity.ok(UserResponse.from(user));
 	}
 
 }
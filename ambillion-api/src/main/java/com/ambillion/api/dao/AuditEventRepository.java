@@ -0,0 +1,15 @@
+package com.ambillion.api.dao;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.ambillion.api.entity.AuditEvent;
+
+@Repository
+public interface AuditEventRepository extends JpaRepository<AuditEvent, Long> {
+
+	Page<AuditEvent> findByUserIdOrderByEventTimestampDescIdDesc(Long userId, Pageable pageable);
+
+}
@@ -0,0 +1,47 @@
+package com.ambillion.api.dao;
+
+import java.sql.Timestamp;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.ambillion.api.entity.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+	@Transactional
+	@Modifying
+	@Query("delete from IdempotencyRecord r where r.createdTimestamp < :cutoff")
+	int deleteExpired(@Param("cutoff") Timestamp cutoff);
+
+	@Transactional
+	@Modifying
+	@Query("update IdempotencyRecord r set r.claimToken = :newToken, r.requestFingerprint = :fingerprint, r.createdTimestamp = :now "
+			+ "where r.idempotencyKey = :key and r.claimToken = :claimToken and r.createdTimestamp = :claimedAt and r.responseBody is null")
+	int takeOverClaim(@Param("key") String key, @Param("claimToken") String claimToken, @Param("claimedAt") Timestamp claimedAt,
+			@Param("newToken") String newToken, @Param("fingerprint") String fingerprint, @Param("now") Timestamp now);
+
+	@Transactional
+	@Modifying
+	@Query("update IdempotencyRecord r set r.claimToken = :newToken, r.requestFingerprint = :fingerprint, r.createdTimestamp = :now, "
+			+ "r.responseBody = null where r.idempotencyKey = :key and r.claimToken = :claimToken and r.createdTimestamp = :claimedAt "
+			+ "and r.responseBody is not null")
+	int resetExpiredClaim(@Param("key") String key, @Param("claimToken") String claimToken, @Param("claimedAt") Timestamp claimedAt,
+			@Param("newToken") String newToken, @Param("fingerprint") String fingerprint, @Param("now") Timestamp now);
+
+	@Transactional
+	@Modifying
+	@Query("update IdempotencyRecord r set r.responseBody = :responseBody where r.idempotencyKey = :key and r.claimToken = :claimToken")
+	int completeClaim(@Param("key") String key, @Param("claimToken") String claimToken, @Param("responseBody") String responseBody);
+
+	@Transactional
+	@Modifying
+	@Query("delete from IdempotencyRecord r where r.idempotencyKey = :key and r.claimToken = :claimToken")
+	int deleteClaim(@Param("key") String key, @Param("claimToken") String claimToken);
+
+}
@@ -1,10 +1,13 @@
 package com.ambillion.api.dao;
 
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import com.ambillion.api.dto.UserResponse;
 import com.ambillion.api.entity.User;
 
 @Repository
@@ -12,4 +15,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
 	Optional<User> findByEmail(String email);
 
+	boolean existsByEmail(String email);
+
+	@Query("select new com.ambillion.api.dto.UserResponse(u.id, u.firstName, u.lastName, u.company, u.email, u.role, u.country, u.registeredDate, u.status) from User u")
+	List<UserResponse> findAllUserResponses();
+
 }
@@ -0,0 +1,17 @@
+package com.ambillion.api.dto;
+
+import java.sql.Timestamp;
+
+import com.ambillion.api.entity.AuditEvent;
+import com.ambillion.api.enums.AuditAction;
+import com.ambillion.api.enums.AuditEntityType;
+
+public record AuditEventResponse(Long id, AuditEntityType entityType, Long entityId, AuditAction action, String actor, String details,
+		Timestamp eventTimestamp) {
+
+	public static AuditEventResponse from(final AuditEvent event) {
+
+		return new AuditEventResponse(event.getId(), event.getEntityType(), event.getEntityId(), event.getAction(), event.getActor(), event.getDetails(),
+				event.getEventTimestamp());
+	}
+}
@@ -0,0 +1,12 @@
+package com.ambillion.api.dto;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * RFC 7807 problem details body.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProblemDetail(String type, String title, int status, String detail, String instance, Map<String, String> errors) {
+}
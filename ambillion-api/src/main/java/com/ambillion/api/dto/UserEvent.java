@@ -0,0 +1,9 @@
+package com.ambillion.api.dto;
+
+import java.sql.Timestamp;
+
+import com.ambillion.api.enums.UserEventType;
+import com.ambillion.api.enums.UserStatus;
+
+public record UserEvent(long id, UserEventType type, Long userId, UserStatus status, Timestamp eventTimestamp) {
+}
@@ -0,0 +1,21 @@
+package com.ambillion.api.dto;
+
+import java.util.Date;
+
+import com.ambillion.api.entity.User;
+import com.ambillion.api.enums.Role;
+import com.ambillion.api.enums.UserStatus;
+
+/**
+ * Public representation of a {@link User}. The fields are fixed here instead of being filtered per write with a JSON view, so the password hash
+ * and audit columns can never be serialized.
+ */
+public record UserResponse(Long id, String firstName, String lastName, String company, String email, Role role, String country, Date registeredDate,
+		UserStatus status) {
+
+	public static UserResponse from(final User user) {
+
+		return new UserResponse(user.getId(), user.getFirstName(), user.getLastName(), user.getCompany(), user.getEmail(), user.getRole(),
+				user.getCountry(), user.getRegisteredDate(), user.getStatus());
+	}
+}
@@ -0,0 +1,61 @@
+package com.ambillion.api.entity;
+
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+
+import com.ambillion.api.enums.AuditAction;
+import com.ambillion.api.enums.AuditEntityType;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Append-only audit record. Rows are never updated; ids come from a pooled table generator so the background writer can batch its inserts, which
+ * IDENTITY columns would prevent.
+ */
+@NoArgsConstructor
+@Data
+@Entity
+@Table(name = "audit_event", indexes = @Index(name = "idx_audit_event_user", columnList = "user_id, event_timestamp"))
+public class AuditEvent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "audit_event_seq")
+	@TableGenerator(name = "audit_event_seq", table = "id_generator", pkColumnValue = "audit_event", allocationSize = 100)
+	@Column(name = "audit_event_id")
+	private Long id;
+
+	@Column(name = "user_id")
+	private Long userId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(name = "entity_type", length = 20, nullable = false, updatable = false)
+	private AuditEntityType entityType;
+
+	@Column(name = "entity_id", updatable = false)
+	private Long entityId;
+
+	@Enumerated(EnumType.STRING)
+	@Column(length = 20, nullable = false, updatable = false)
+	private AuditAction action;
+
+	@Column(length = 100, nullable = false, updatable = false)
+	private String actor;
+
+	@Column(length = 500, updatable = false)
+	private String details;
+
+	@Column(name = "event_timestamp", nullable = false, updatable = false)
+	private Timestamp eventTimestamp;
+
+}
@@ -0,0 +1,75 @@
+package com.ambillion.api.entity;
+
+import java.sql.Timestamp;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.springframework.data.domain.Persistable;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response stored for an <code>Idempotency-Key</code>. A row without a response body is the claim of the node currently executing the request;
+ * the primary key makes sure only one node can hold it, and the claim token makes sure only the holder can complete or release it.
+ */
+@NoArgsConstructor
+@Data
+@Entity
+@Table(name = "idempotency_key")
+public class IdempotencyRecord implements Persistable<String> {
+
+	@Id
+	@Column(name = "idempotency_key", length = 100)
+	private String idempotencyKey;
+
+	@Column(name = "request_fingerprint", length = 64, nullable = false)
+	private String requestFingerprint;
+
+	@Column(name = "claim_token", length = 36, nullable = false)
+	private String claimToken;
+
+	@Lob
+	@Column(name = "response_body")
+	private String responseBody;
+
+	@Column(name = "created_timestamp", nullable = false)
+	private Timestamp createdTimestamp;
+
+	@Transient
+	private boolean newRecord = true;
+
+	public IdempotencyRecord(final String idempotencyKey, final String requestFingerprint, final String claimToken, final Timestamp createdTimestamp) {
+
+		this.idempotencyKey = idempotencyKey;
+		this.requestFingerprint = requestFingerprint;
+		this.claimToken = claimToken;
+		this.createdTimestamp = createdTimestamp;
+	}
+
+	@Override
+	public String getId() {
+
+		return idempotencyKey;
+	}
+
+	@Override
+	public boolean isNew() {
+
+		return newRecord;
+	}
+
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+
+		newRecord = false;
+	}
+}
@@ -21,8 +21,6 @@ import org.hibernate.annotations.UpdateTimestamp;
 
 import com.ambillion.api.enums.Role;
 import com.ambillion.api.enums.UserStatus;
-import com.ambillion.api.util.ApplicationViews;
-import com.fasterxml.jackson.annotation.JsonView;
 
 import lombok.Data;
 
@@ -31,27 +29,22 @@ import lombok.Data;
 @Table(name = "users")
 public class User {
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	@Column(name = "userid")
 	private Long id;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@NotBlank(message = "First Name is mandatory")
 	@Column(name = "firstName", length = 25, nullable = false)
 	private String firstName;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@NotBlank(message = "Last Name is mandatory")
 	@Column(length = 25, nullable = false)
 	private String lastName;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@Column(length = 100, nullable = true)
 	private String company;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@Email(message = "Email should be valid")
 	@NotBlank(message = "Email is mandatory")
 	@Column(length = 100, nullable = false, unique = true)
@@ -61,16 +54,13 @@ public class User {
 	@Column(length = 250, nullable = false)
 	private String password;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@Enumerated(EnumType.STRING)
 	@Column(length = 20, nullable = false)
 	private Role role;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@Column(length = 50, nullable = true)
 	private String country;
 
-	@JsonView(ApplicationViews.DTOView.class)
 	@CreationTimestamp
 	@Temporal(TemporalType.TIMESTAMP)
 	@Column(updatable = false, nullable = false)
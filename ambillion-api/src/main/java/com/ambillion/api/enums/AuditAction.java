@@ -0,0 +1,5 @@
+package com.ambillion.api.enums;
+
+public enum AuditAction {
+	CREATED, PROFILE_UPDATED, STATUS_CHANGED, DELETED
+}
@@ -0,0 +1,22 @@
+package com.ambillion.api.enums;
+
+public enum EndpointGroup {
+
+	READ(RequestPriority.HIGH),
+	ADMIN(RequestPriority.HIGH),
+	LISTING(RequestPriority.LOW),
+	LOGIN(RequestPriority.LOW),
+	REGISTRATION(RequestPriority.LOW);
+
+	private final RequestPriority priority;
+
+	EndpointGroup(final RequestPriority priority) {
+
+		this.priority = priority;
+	}
+
+	public RequestPriority getPriority() {
+
+		return priority;
+	}
+}
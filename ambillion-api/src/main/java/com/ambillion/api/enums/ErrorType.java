@@ -0,0 +1,41 @@
+package com.ambillion.api.enums;
+
+import org.springframework.http.HttpStatus;
+
+public enum ErrorType {
+
+	NOT_FOUND(HttpStatus.NOT_FOUND, "not-found", "Resource not found"),
+	CONFLICT(HttpStatus.CONFLICT, "conflict", "Resource conflict"),
+	INVALID_STATE_TRANSITION(HttpStatus.CONFLICT, "invalid-state-transition", "Invalid state transition"),
+	IDEMPOTENCY_KEY_REUSED(HttpStatus.UNPROCESSABLE_ENTITY, "idempotency-key-reused", "Idempotency key reused with a different request"),
+	VALIDATION_FAILED(HttpStatus.BAD_REQUEST, "validation-failed", "Validation failed"),
+	INVALID_CREDENTIALS(HttpStatus.BAD_REQUEST, "invalid-credentials", "Invalid credentials"),
+	INTERNAL_ERROR(HttpStatus.INTERNAL_SERVER_ERROR, "internal-error", "Internal server error"),
+	OVERLOADED(HttpStatus.SERVICE_UNAVAILABLE, "overloaded", "Service overloaded");
+
+	private final HttpStatus status;
+	private final String slug;
+	private final String title;
+
+	ErrorType(final HttpStatus status, final String slug, final String title) {
+
+		this.status = status;
+		this.slug = slug;
+		this.title = title;
+	}
+
+	public HttpStatus getStatus() {
+
+		return status;
+	}
+
+	public String getSlug() {
+
+		return slug;
+	}
+
+	public String getTitle() {
+
+		return title;
+	}
+}
@@ -0,0 +1,5 @@
+package com.ambillion.api.enums;
+
+public enum RequestPriority {
+	HIGH, LOW
+}
@@ -1,5 +1,14 @@
 package com.ambillion.api.enums;
 
 public enum UserStatus {
-	PENDING, APPROVED, REJECTED
+	PENDING, APPROVED, REJECTED;
+
+	public boolean canTransitionTo(final UserStatus target) {
+
+		return switch (this) {
+		case PENDING -> target == APPROVED || target == REJECTED;
+		case APPROVED -> target == REJECTED;
+		case REJECTED -> target == APPROVED;
+		};
+	}
 }
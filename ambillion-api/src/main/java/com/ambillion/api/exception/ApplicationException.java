@@ -0,0 +1,19 @@
+package com.ambillion.api.exception;
+
+import com.ambillion.api.enums.ErrorType;
+
+/**
+ * Base class of the expected domain errors. These are answered with a 4xx problem response and never logged with a stack trace, so the stack
+ * trace is not captured on construction.
+ */
+public abstract class ApplicationException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	protected ApplicationException(final String message) {
+
+		super(message, null, false, false);
+	}
+
+	public abstract ErrorType getErrorType();
+}
@@ -0,0 +1,19 @@
+package com.ambillion.api.exception;
+
+import com.ambillion.api.enums.ErrorType;
+
+public class ConflictException extends ApplicationException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ConflictException(final String message) {
+
+		super(message);
+	}
+
+	@Override
+	public ErrorType getErrorType() {
+
+		return ErrorType.CONFLICT;
+	}
+}
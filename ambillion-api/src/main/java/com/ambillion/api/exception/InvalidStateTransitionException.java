@@ -0,0 +1,19 @@
+package com.ambillion.api.exception;
+
+import com.ambillion.api.enums.ErrorType;
+
+public class InvalidStateTransitionException extends ApplicationException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidStateTransitionException(final String message) {
+
+		super(message);
+	}
+
+	@Override
+	public ErrorType getErrorType() {
+
+		return ErrorType.INVALID_STATE_TRANSITION;
+	}
+}
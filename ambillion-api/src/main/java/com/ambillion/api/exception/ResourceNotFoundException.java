@@ -0,0 +1,19 @@
+package com.ambillion.api.exception;
+
+import com.ambillion.api.enums.ErrorType;
+
+public class ResourceNotFoundException extends ApplicationException {
+
+	private static final long serialVersionUID = 1L;
+
+	public ResourceNotFoundException(final String message) {
+
+		super(message);
+	}
+
+	@Override
+	public ErrorType getErrorType() {
+
+		return ErrorType.NOT_FOUND;
+	}
+}
@@ -0,0 +1,27 @@
+package com.ambillion.api.exception;
+
+import com.ambillion.api.enums.ErrorType;
+
+public class ServiceOverloadedException extends ApplicationException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int retryAfterSeconds;
+
+	public ServiceOverloadedException(final String message, final int retryAfterSeconds) {
+
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public int getRetryAfterSeconds() {
+
+		return retryAfterSeconds;
+	}
+
+	@Override
+	public ErrorType getErrorType() {
+
+		return ErrorType.OVERLOADED;
+	}
+}
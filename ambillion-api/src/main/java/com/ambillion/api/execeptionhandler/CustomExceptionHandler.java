@@ -3,18 +3,33 @@ package com.ambillion.api.execeptionhandler;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import com.ambillion.api.enums.ErrorType;
+import com.ambillion.api.exception.ApplicationException;
+import com.ambillion.api.exception.ServiceOverloadedException;
+
+import lombok.extern.log4j.Log4j2;
+
 @ControllerAdvice
+@Log4j2
 public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
 
+	@Autowired
+	private ProblemResponseFactory problemResponseFactory;
+
 	@Override
 	protected ResponseEntity<Object> handleMethodArgumentNotValid(final MethodArgumentNotValidException ex, final HttpHeaders headers, final HttpStatus status,
 			final WebRequest request) {
@@ -22,15 +37,48 @@ public class CustomExceptionHandler extends ResponseEntityExceptionHandler {
 		final Map<String, String> errors = new HashMap<>();
 		ex.getBindingResult().getFieldErrors().forEach(error -> errors.put(error.getField(), error.getDefaultMessage()));
 
-		return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+		return problemResponseFactory.create(ErrorType.VALIDATION_FAILED, null, getRequestUri(request), errors);
+	}
+
+	@Override
+	protected ResponseEntity<Object> handleExceptionInternal(final Exception ex, final Object body, final HttpHeaders headers, final HttpStatus status,
+			final WebRequest request) {
+
+		return problemResponseFactory.create(status, null, getRequestUri(request), headers);
+	}
+
+	@ExceptionHandler(ApplicationException.class)
+	public ResponseEntity<Object> handleApplicationException(final ApplicationException ex, final HttpServletRequest request) {
+
+		log.debug("{}: {}", ex.getErrorType(), ex.getMessage());
+		return problemResponseFactory.create(ex.getErrorType(), ex.getMessage(), request.getRequestURI());
+	}
+
+	@ExceptionHandler(ServiceOverloadedException.class)
+	public ResponseEntity<Object> handleServiceOverloaded(final ServiceOverloadedException ex, final HttpServletRequest request) {
+
+		log.debug("{}: {}", ex.getErrorType(), ex.getMessage());
+		final HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+		return problemResponseFactory.create(ex.getErrorType(), ex.getMessage(), request.getRequestURI(), headers);
+	}
+
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	public ResponseEntity<Object> handleDataIntegrityViolation(final DataIntegrityViolationException ex, final HttpServletRequest request) {
+
+		log.warn("Data integrity violation on {}: {}", request.getRequestURI(), ex.getMostSpecificCause().getMessage());
+		return problemResponseFactory.create(ErrorType.CONFLICT, null, request.getRequestURI());
 	}
 
 	@ExceptionHandler(Exception.class)
-	public ResponseEntity<Object> handleAllExceptions(final Exception ex, final WebRequest request) {
+	public ResponseEntity<Object> handleAllExceptions(final Exception ex, final HttpServletRequest request) {
+
+		log.error("Unhandled exception on {}", request.getRequestURI(), ex);
+		return problemResponseFactory.create(ErrorType.INTERNAL_ERROR, null, request.getRequestURI());
+	}
 
-		final Map<String, String> responseBody = new HashMap<>();
-		responseBody.put("message", ex.getMessage());
+	private String getRequestUri(final WebRequest request) {
 
-		return new ResponseEntity<>(responseBody, HttpStatus.INTERNAL_SERVER_ERROR);
+		return request instanceof ServletWebRequest servletWebRequest ? servletWebRequest.getRequest().getRequestURI() : null;
 	}
 }
@@ -0,0 +1,111 @@
+package com.ambillion.api.execeptionhandler;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import com.ambillion.api.dto.ProblemDetail;
+import com.ambillion.api.enums.ErrorType;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The <code>ProblemResponseFactory</code> builds RFC 7807 responses. Type, title, status, headers and the error counter of every domain error
+ * type and HTTP error status are created once at startup, so an error response only allocates its body.
+ */
+@Component
+public class ProblemResponseFactory {
+
+	private static final String METRIC_NAME = "api.errors";
+	private static final String TYPE_PREFIX = "urn:ambillion:problem:";
+	private static final String BLANK_TYPE = "about:blank";
+
+	private static final HttpHeaders PROBLEM_HEADERS;
+
+	static {
+		final HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+		PROBLEM_HEADERS = HttpHeaders.readOnlyHttpHeaders(headers);
+	}
+
+	private final Map<ErrorType, ProblemTemplate> errorTypeTemplates = new EnumMap<>(ErrorType.class);
+	private final Map<HttpStatus, ProblemTemplate> statusTemplates = new EnumMap<>(HttpStatus.class);
+
+	public ProblemResponseFactory(final MeterRegistry meterRegistry) {
+
+		for (final ErrorType errorType : ErrorType.values()) {
+			errorTypeTemplates.put(errorType, new ProblemTemplate(TYPE_PREFIX + errorType.getSlug(), errorType.getTitle(), errorType.getStatus(),
+					counter(meterRegistry, errorType.getSlug(), errorType.getStatus())));
+		}
+		for (final HttpStatus status : HttpStatus.values()) {
+			if (status.isError()) {
+				statusTemplates.put(status,
+						new ProblemTemplate(BLANK_TYPE, status.getReasonPhrase(), status, counter(meterRegistry, "http-" + status.value(), status)));
+			}
+		}
+	}
+
+	public ResponseEntity<Object> create(final ErrorType errorType, final String detail, final String instance) {
+
+		return create(errorTypeTemplates.get(errorType), detail, instance, null, null);
+	}
+
+	public ResponseEntity<Object> create(final ErrorType errorType, final String detail, final String instance, final Map<String, String> errors) {
+
+		return create(errorTypeTemplates.get(errorType), detail, instance, errors, null);
+	}
+
+	public ResponseEntity<Object> create(final ErrorType errorType, final String detail, final String instance, final HttpHeaders headers) {
+
+		return create(errorTypeTemplates.get(errorType), detail, instance, null, headers);
+	}
+
+	public ResponseEntity<Object> create(final HttpStatus status, final String detail, final String instance) {
+
+		return create(status, detail, instance, null);
+	}
+
+	/**
+	 * Builds the problem response for a plain HTTP error status. <code>headers</code> such as <code>Allow</code> or <code>Accept</code> are
+	 * sent along with the problem content type.
+	 */
+	public ResponseEntity<Object> create(final HttpStatus status, final String detail, final String instance, final HttpHeaders headers) {
+
+		final ProblemTemplate template = statusTemplates.get(status);
+		return create(template != null ? template : errorTypeTemplates.get(ErrorType.INTERNAL_ERROR), detail, instance, null, headers);
+	}
+
+	private ResponseEntity<Object> create(final ProblemTemplate template, final String detail, final String instance, final Map<String, String> errors,
+			final HttpHeaders headers) {
+
+		template.counter().increment();
+		final ProblemDetail body = new ProblemDetail(template.type(), template.title(), template.status().value(), detail, instance, errors);
+		return new ResponseEntity<>(body, mergeHeaders(headers), template.status());
+	}
+
+	private static HttpHeaders mergeHeaders(final HttpHeaders headers) {
+
+		if (headers == null || headers.isEmpty()) {
+			return PROBLEM_HEADERS;
+		}
+		final HttpHeaders merged = new HttpHeaders();
+		merged.putAll(headers);
+		merged.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+		return merged;
+	}
+
+	private static Counter counter(final MeterRegistry meterRegistry, final String type, final HttpStatus status) {
+
+		return Counter.builder(METRIC_NAME).description("Error responses by problem type").tag("type", type)
+				.tag("status", String.valueOf(status.value())).register(meterRegistry);
+	}
+
+	private record ProblemTemplate(String type, String title, HttpStatus status, Counter counter) {
+	}
+}
@@ -0,0 +1,186 @@
+package com.ambillion.api.filter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.ambillion.api.enums.EndpointGroup;
+import com.ambillion.api.enums.ErrorType;
+import com.ambillion.api.enums.RequestPriority;
+import com.ambillion.api.execeptionhandler.ProblemResponseFactory;
+import com.ambillion.api.util.ApplicationURIConstants;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The <code>AdaptiveConcurrencyLimitFilter</code> sheds load before it reaches Tomcat's worker pool and the database. Every user endpoint group
+ * has its own {@link AdaptiveConcurrencyLimiter}; a request over its group's limit is answered with 503 and <code>Retry-After</code>. Low
+ * priority groups (listings and the bcrypt heavy login and registration calls) are also rejected while a high priority group is close to its
+ * limit, so reads and admin actions keep their capacity under overload.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Log4j2
+public class AdaptiveConcurrencyLimitFilter extends OncePerRequestFilter {
+
+	private static final String OVERLOADED_DETAIL = "Too many concurrent requests, retry later";
+	private static final String APPROVE_SUFFIX = suffix(ApplicationURIConstants.APPROVE_USER_API);
+	private static final String REJECT_SUFFIX = suffix(ApplicationURIConstants.REJECT_USER_API);
+	private static final String EVENTS_SUFFIX = suffix(ApplicationURIConstants.USER_EVENTS_API);
+	private static final String AUDIT_SUFFIX = suffix(ApplicationURIConstants.AUDIT_USER_API);
+
+	private final ProblemResponseFactory problemResponseFactory;
+	private final ObjectMapper objectMapper;
+
+	private final Map<EndpointGroup, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+	private final Map<EndpointGroup, Counter> limitRejections = new EnumMap<>(EndpointGroup.class);
+	private final Map<EndpointGroup, Counter> priorityRejections = new EnumMap<>(EndpointGroup.class);
+
+	@Value("${concurrency.limit.enabled:true}")
+	private boolean enabled;
+
+	@Value("${concurrency.limit.retry-after:1}")
+	private String retryAfterSeconds;
+
+	@Value("${concurrency.limit.pressure-ratio:0.8}")
+	private double pressureRatio;
+
+	public AdaptiveConcurrencyLimitFilter(final ProblemResponseFactory problemResponseFactory, final ObjectMapper objectMapper,
+			final MeterRegistry meterRegistry, @Value("${concurrency.limit.initial:20}") final int initialLimit,
+			@Value("${concurrency.limit.min:4}") final int minLimit, @Value("${concurrency.limit.max:200}") final int maxLimit) {
+
+		this.problemResponseFactory = problemResponseFactory;
+		this.objectMapper = objectMapper;
+
+		for (final EndpointGroup group : EndpointGroup.values()) {
+			final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit);
+			limiters.put(group, limiter);
+
+			final String groupName = group.name().toLowerCase();
+			Gauge.builder("api.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).description("Adaptive concurrency limit")
+					.tag("group", groupName).register(meterRegistry);
+			Gauge.builder("api.concurrency.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).description("Requests in flight")
+					.tag("group", groupName).register(meterRegistry);
+			limitRejections.put(group, Counter.builder("api.concurrency.rejected").description("Requests shed with 503").tag("group", groupName)
+					.tag("reason", "limit").register(meterRegistry));
+			priorityRejections.put(group, Counter.builder("api.concurrency.rejected").description("Requests shed with 503").tag("group", groupName)
+					.tag("reason", "priority").register(meterRegistry));
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilter(final HttpServletRequest request) {
+
+		return !enabled;
+	}
+
+	@Override
+	protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+			throws ServletException, IOException {
+
+		final EndpointGroup group = resolveGroup(request);
+		if (group == null) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+
+		if (group.getPriority() == RequestPriority.LOW && isHighPriorityUnderPressure()) {
+			priorityRejections.get(group).increment();
+			reject(request, response, group);
+			return;
+		}
+
+		final AdaptiveConcurrencyLimiter limiter = limiters.get(group);
+		if (!limiter.tryAcquire()) {
+			limitRejections.get(group).increment();
+			reject(request, response, group);
+			return;
+		}
+
+		final long start = System.nanoTime();
+		boolean dropped = true;
+		try {
+			filterChain.doFilter(request, response);
+			dropped = response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+		} finally {
+			if (dropped) {
+				limiter.onDropped();
+			} else {
+				limiter.onSuccess(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private boolean isHighPriorityUnderPressure() {
+
+		for (final Map.Entry<EndpointGroup, AdaptiveConcurrencyLimiter> entry : limiters.entrySet()) {
+			if (entry.getKey().getPriority() == RequestPriority.HIGH && entry.getValue().isUnderPressure(pressureRatio)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void reject(final HttpServletRequest request, final HttpServletResponse response, final EndpointGroup group) throws IOException {
+
+		log.debug("Shedding {} request {} {}", group, request.getMethod(), request.getRequestURI());
+		response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+		response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(),
+				problemResponseFactory.create(ErrorType.OVERLOADED, OVERLOADED_DETAIL, request.getRequestURI()).getBody());
+	}
+
+	/**
+	 * Maps a request to its endpoint group, or <code>null</code> for requests that are not limited such as documentation and the long-lived
+	 * event streams.
+	 */
+	private EndpointGroup resolveGroup(final HttpServletRequest request) {
+
+		final String path = request.getServletPath();
+		if (!path.startsWith(ApplicationURIConstants.API_USERSERVICE_URL)) {
+			return null;
+		}
+		final String subPath = path.substring(ApplicationURIConstants.API_USERSERVICE_URL.length());
+		if (subPath.endsWith(EVENTS_SUFFIX)) {
+			return null;
+		}
+
+		final HttpMethod method = HttpMethod.resolve(request.getMethod());
+		if (method == null) {
+			return null;
+		}
+		return switch (method) {
+		// the audit trail is paged like the user list
+		case GET -> subPath.isEmpty() || "/".equals(subPath) || subPath.endsWith(AUDIT_SUFFIX) ? EndpointGroup.LISTING : EndpointGroup.READ;
+		case POST -> ApplicationURIConstants.LOGIN_API.equals(subPath) ? EndpointGroup.LOGIN : EndpointGroup.REGISTRATION;
+		// profile updates hash the password again
+		case PUT -> subPath.endsWith(APPROVE_SUFFIX) || subPath.endsWith(REJECT_SUFFIX) ? EndpointGroup.ADMIN : EndpointGroup.REGISTRATION;
+		case DELETE -> EndpointGroup.ADMIN;
+		default -> null;
+		};
+	}
+
+	private static String suffix(final String uriTemplate) {
+
+		return uriTemplate.substring(uriTemplate.lastIndexOf('/'));
+	}
+}
@@ -0,0 +1,103 @@
+package com.ambillion.api.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The <code>AdaptiveConcurrencyLimiter</code> caps the number of in-flight requests and adapts the cap to observed latency. The limit follows
+ * the gradient between the long-term average latency and the latest sample: it grows by about <code>sqrt(limit)</code> while latency is steady
+ * and shrinks as soon as requests start to queue. Failed requests cut the limit multiplicatively.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	private static final double LONG_RTT_WEIGHT = 0.01;
+	private static final double SMOOTHING = 0.2;
+	private static final double MIN_GRADIENT = 0.5;
+	private static final double BACKOFF_RATIO = 0.9;
+	private static final double RTT_RECOVERY_RATIO = 0.95;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private volatile double limit;
+	private double longRttNanos;
+
+	public AdaptiveConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit) {
+
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+	}
+
+	public boolean tryAcquire() {
+
+		int current;
+		do {
+			current = inFlight.get();
+			if (current >= (int) limit) {
+				return false;
+			}
+		} while (!inFlight.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	public void onSuccess(final long rttNanos) {
+
+		final int inFlightBeforeRelease = inFlight.getAndDecrement();
+		updateLimit(rttNanos, inFlightBeforeRelease);
+	}
+
+	public void onDropped() {
+
+		inFlight.decrementAndGet();
+		synchronized (this) {
+			limit = clamp(limit * BACKOFF_RATIO);
+		}
+	}
+
+	public boolean isUnderPressure(final double ratio) {
+
+		return inFlight.get() >= limit * ratio;
+	}
+
+	public int getLimit() {
+
+		return (int) limit;
+	}
+
+	public int getInFlight() {
+
+		return inFlight.get();
+	}
+
+	private synchronized void updateLimit(final long rttNanos, final int inFlightBeforeRelease) {
+
+		if (rttNanos <= 0) {
+			return;
+		}
+		if (longRttNanos == 0) {
+			longRttNanos = rttNanos;
+			return;
+		}
+
+		longRttNanos = longRttNanos * (1 - LONG_RTT_WEIGHT) + rttNanos * LONG_RTT_WEIGHT;
+		if (longRttNanos > 2 * rttNanos) {
+			// latency dropped sharply, let the baseline catch up instead of growing the limit on a stale average
+			longRttNanos *= RTT_RECOVERY_RATIO;
+		}
+
+		if (inFlightBeforeRelease * 2 < limit) {
+			// too little load to tell whether a higher limit would hold
+			return;
+		}
+
+		final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / rttNanos));
+		final double newLimit = limit * gradient + Math.sqrt(limit);
+		limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+	}
+
+	private double clamp(final double value) {
+
+		return Math.max(minLimit, Math.min(maxLimit, value));
+	}
+}
@@ -0,0 +1,164 @@
+package com.ambillion.api.service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.ambillion.api.dao.AuditEventRepository;
+import com.ambillion.api.entity.AuditEvent;
+import com.ambillion.api.enums.AuditAction;
+import com.ambillion.api.enums.AuditEntityType;
+import com.ambillion.api.util.MpscRingBuffer;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The <code>AuditService</code> keeps the append-only audit trail. Regular events are queued in a lock-free ring buffer and written in batches by
+ * {@link #flush()}, so request threads never wait on the audit insert. Security relevant events go through {@link #recordDurable} and are written
+ * before the call returns.
+ */
+@Service
+@Log4j2
+public class AuditService {
+
+	private static final String SYSTEM_ACTOR = "system";
+
+	@Autowired
+	private AuditEventRepository auditEventRepository;
+
+	@Value("${audit.flush.batch-size:500}")
+	private int batchSize;
+
+	private final MpscRingBuffer<AuditEvent> buffer;
+	private final TransactionTemplate overflowTransaction;
+
+	public AuditService(@Value("${audit.buffer.capacity:8192}") final int bufferCapacity, final PlatformTransactionManager transactionManager) {
+
+		this.buffer = new MpscRingBuffer<>(bufferCapacity);
+		// the overflow write may run after the caller's commit, where joining its transaction would never commit
+		this.overflowTransaction = new TransactionTemplate(transactionManager);
+		this.overflowTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * Queues the event for the next flush. Inside a transaction the event is only queued after the commit, so a change that rolls back leaves no
+	 * trace in the audit trail.
+	 */
+	public void record(final AuditEntityType entityType, final Long entityId, final Long userId, final AuditAction action, final String details) {
+
+		final AuditEvent event = newEvent(entityType, entityId, userId, action, details);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+
+					enqueue(event);
+				}
+			});
+		} else {
+			enqueue(event);
+		}
+	}
+
+	/**
+	 * Writes the event in the caller's transaction, so it commits or rolls back together with the change it records.
+	 */
+	public void recordDurable(final AuditEntityType entityType, final Long entityId, final Long userId, final AuditAction action, final String details) {
+
+		auditEventRepository.save(newEvent(entityType, entityId, userId, action, details));
+	}
+
+	/**
+	 * Returns the audit trail of a user, newest first. Events still waiting in the buffer become visible after the next flush.
+	 */
+	public Page<AuditEvent> getUserAuditTrail(final Long userId, final Pageable pageable) {
+
+		return auditEventRepository.findByUserIdOrderByEventTimestampDescIdDesc(userId, pageable);
+	}
+
+	@Scheduled(fixedDelayString = "${audit.flush.interval:500}")
+	public synchronized void flush() {
+
+		final List<AuditEvent> batch = new ArrayList<>(Math.min(batchSize, buffer.size()));
+		while (buffer.drainTo(batch, batchSize) > 0) {
+			try {
+				auditEventRepository.saveAll(batch);
+			} catch (final RuntimeException e) {
+				log.error("Failed to write {} audit events: {}", batch.size(), e.getMessage());
+				requeue(batch);
+				return;
+			}
+			batch.clear();
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+
+		flush();
+		if (buffer.size() > 0) {
+			log.error("{} audit events could not be written before shutdown", buffer.size());
+		}
+	}
+
+	private void enqueue(final AuditEvent event) {
+
+		if (!buffer.offer(event)) {
+			log.warn("Audit buffer full ({} events), writing {} event for user {} synchronously", buffer.capacity(), event.getAction(),
+					event.getUserId());
+			overflowTransaction.executeWithoutResult(status -> auditEventRepository.save(event));
+		}
+	}
+
+	private void requeue(final List<AuditEvent> batch) {
+
+		int dropped = 0;
+		for (final AuditEvent event : batch) {
+			// ids handed out by the failed batch were never committed
+			event.setId(null);
+			if (!buffer.offer(event)) {
+				dropped++;
+			}
+		}
+		if (dropped > 0) {
+			log.error("Dropped {} audit events, buffer is full", dropped);
+		}
+	}
+
+	private AuditEvent newEvent(final AuditEntityType entityType, final Long entityId, final Long userId, final AuditAction action,
+			final String details) {
+
+		final AuditEvent event = new AuditEvent();
+		event.setEntityType(entityType);
+		event.setEntityId(entityId);
+		event.setUserId(userId);
+		event.setAction(action);
+		event.setActor(currentActor());
+		event.setDetails(details);
+		event.setEventTimestamp(new Timestamp(System.currentTimeMillis()));
+		return event;
+	}
+
+	private String currentActor() {
+
+		final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication != null && authentication.getName() != null ? authentication.getName() : SYSTEM_ACTOR;
+	}
+}
@@ -0,0 +1,297 @@
+package com.ambillion.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ambillion.api.dao.IdempotencyRecordRepository;
+import com.ambillion.api.entity.IdempotencyRecord;
+import com.ambillion.api.exception.ConflictException;
+import com.ambillion.api.exception.IdempotencyKeyReusedException;
+import com.ambillion.api.exception.InvalidRequestException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The <code>IdempotencyService</code> executes a request at most once per <code>Idempotency-Key</code> and replays the stored JSON response on
+ * retries. Responses are kept in a bounded in-memory LRU and in the <code>idempotency_key</code> table, which also acts as the claim between
+ * nodes. Concurrent duplicates on the same node wait for the first request instead of repeating its work. Requests are compared by an HMAC of
+ * their canonical form, the body can hold a password so a plain hash of it must never be stored.
+ */
+@Service
+@Log4j2
+public class IdempotencyService {
+
+	public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+	private static final int MAX_KEY_LENGTH = 100;
+	private static final String IN_PROGRESS_MESSAGE = "A request with this Idempotency-Key is already being processed";
+	private static final String FINGERPRINT_ALGORITHM = "HmacSHA256";
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${idempotency.ttl:86400000}")
+	private long ttl;
+
+	// must stay well above the slowest request, otherwise a claim still being worked on is taken over
+	@Value("${idempotency.in-flight-timeout:300000}")
+	private long inFlightTimeout;
+
+	private final Map<String, CachedResponse> cache;
+	private final Map<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+	private final SecretKeySpec fingerprintKey;
+
+	public IdempotencyService(@Value("${idempotency.cache.max-entries:10000}") final int maxEntries,
+			@Value("${idempotency.fingerprint-secret:}") final String fingerprintSecret) {
+
+		this.fingerprintKey = new SecretKeySpec(fingerprintSecret.isEmpty() ? randomSecret() : fingerprintSecret.getBytes(StandardCharsets.UTF_8),
+				FINGERPRINT_ALGORITHM);
+		this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, CachedResponse> eldest) {
+
+				return size() > maxEntries;
+			}
+		});
+	}
+
+	/**
+	 * Runs <code>action</code> and returns its result as JSON. With an idempotency key the result is stored and later calls with the same key
+	 * and the same request (method, path, query parameters and body) return it without running the action again.
+	 */
+	public ResponseEntity<String> execute(final String idempotencyKey, final HttpServletRequest request, final Object requestBody,
+			final Supplier<?> action) {
+
+		if (idempotencyKey == null) {
+			return toResponse(toJson(action.get()), false);
+		}
+		if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+			throw new InvalidRequestException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+		}
+		final String fingerprint = fingerprint(request, requestBody);
+
+		final CachedResponse cached = getCached(idempotencyKey);
+		if (cached != null) {
+			return replay(cached, fingerprint);
+		}
+
+		final CompletableFuture<CachedResponse> future = new CompletableFuture<>();
+		final CompletableFuture<CachedResponse> running = inFlight.putIfAbsent(idempotencyKey, future);
+		if (running != null) {
+			return replay(await(running), fingerprint);
+		}
+
+		try {
+			final Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(idempotencyKey);
+			final CachedResponse stored = existing.map(this::toStoredResponse).orElse(null);
+			if (stored != null) {
+				cache.put(idempotencyKey, stored);
+				future.complete(stored);
+				return replay(stored, fingerprint);
+			}
+
+			final Claim claim = existing.isPresent() ? takeOver(existing.get(), fingerprint) : claim(idempotencyKey, fingerprint);
+			final CachedResponse response = executeClaimed(idempotencyKey, claim, fingerprint, action);
+			cache.put(idempotencyKey, response);
+			future.complete(response);
+			return toResponse(response.body(), false);
+		} catch (final RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(idempotencyKey, future);
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${idempotency.purge-interval:3600000}")
+	public void purgeExpired() {
+
+		final int purged = idempotencyRecordRepository.deleteExpired(new Timestamp(System.currentTimeMillis() - ttl));
+		log.debug("Purged {} expired idempotency keys", purged);
+	}
+
+	private Claim claim(final String idempotencyKey, final String fingerprint) {
+
+		final Claim claim = new Claim(UUID.randomUUID().toString(), System.currentTimeMillis());
+		try {
+			idempotencyRecordRepository
+					.saveAndFlush(new IdempotencyRecord(idempotencyKey, fingerprint, claim.token(), new Timestamp(claim.claimedAt())));
+		} catch (final DataIntegrityViolationException e) {
+			throw new ConflictException(IN_PROGRESS_MESSAGE);
+		}
+		return claim;
+	}
+
+	/**
+	 * Reuses the row of an expired response or of a claim abandoned for longer than the in-flight timeout. Both go through a conditional update
+	 * on the token and timestamp that were read, so only one node wins and a claim that is renewed or completed meanwhile is left alone.
+	 */
+	private Claim takeOver(final IdempotencyRecord record, final String fingerprint) {
+
+		final String idempotencyKey = record.getIdempotencyKey();
+		final boolean expired = record.getResponseBody() != null;
+		final long now = System.currentTimeMillis();
+		if (!expired && record.getCreatedTimestamp().getTime() + inFlightTimeout > now) {
+			throw new ConflictException(IN_PROGRESS_MESSAGE);
+		}
+
+		final Claim claim = new Claim(UUID.randomUUID().toString(), now);
+		final int updated = expired
+				? idempotencyRecordRepository.resetExpiredClaim(idempotencyKey, record.getClaimToken(), record.getCreatedTimestamp(), claim.token(),
+						fingerprint, new Timestamp(now))
+				: idempotencyRecordRepository.takeOverClaim(idempotencyKey, record.getClaimToken(), record.getCreatedTimestamp(), claim.token(),
+						fingerprint, new Timestamp(now));
+		if (updated == 0) {
+			throw new ConflictException(IN_PROGRESS_MESSAGE);
+		}
+		if (!expired) {
+			log.warn("Took over the abandoned claim of Idempotency-Key {}", idempotencyKey);
+		}
+		return claim;
+	}
+
+	private CachedResponse executeClaimed(final String idempotencyKey, final Claim claim, final String fingerprint, final Supplier<?> action) {
+
+		final String body;
+		try {
+			body = toJson(action.get());
+		} catch (final RuntimeException e) {
+			// failed requests are not stored, the client may retry them with the same key
+			idempotencyRecordRepository.deleteClaim(idempotencyKey, claim.token());
+			throw e;
+		}
+
+		if (idempotencyRecordRepository.completeClaim(idempotencyKey, claim.token(), body) == 0) {
+			log.warn("Claim of Idempotency-Key {} was taken over by another node, response not stored", idempotencyKey);
+		}
+		return new CachedResponse(fingerprint, body, claim.claimedAt() + ttl);
+	}
+
+	private CachedResponse toStoredResponse(final IdempotencyRecord record) {
+
+		final long expiresAt = record.getCreatedTimestamp().getTime() + ttl;
+		if (record.getResponseBody() == null || expiresAt <= System.currentTimeMillis()) {
+			return null;
+		}
+		return new CachedResponse(record.getRequestFingerprint(), record.getResponseBody(), expiresAt);
+	}
+
+	private String fingerprint(final HttpServletRequest request, final Object requestBody) {
+
+		final StringBuilder canonical = new StringBuilder(request.getMethod()).append(' ').append(request.getServletPath());
+		new TreeMap<>(request.getParameterMap())
+				.forEach((name, values) -> canonical.append('&').append(name).append('=').append(String.join(",", values)));
+		canonical.append('\n').append(toJson(requestBody));
+
+		try {
+			final Mac mac = Mac.getInstance(FINGERPRINT_ALGORITHM);
+			mac.init(fingerprintKey);
+			return HexFormat.of().formatHex(mac.doFinal(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+		} catch (final NoSuchAlgorithmException | InvalidKeyException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] randomSecret() {
+
+		log.warn("idempotency.fingerprint-secret is not set, using a random key: retries first seen by another node or before a restart are rejected");
+		final byte[] secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		return secret;
+	}
+
+	private CachedResponse getCached(final String idempotencyKey) {
+
+		final CachedResponse cached = cache.get(idempotencyKey);
+		if (cached != null && cached.expiresAt() <= System.currentTimeMillis()) {
+			cache.remove(idempotencyKey);
+			return null;
+		}
+		return cached;
+	}
+
+	private CachedResponse await(final CompletableFuture<CachedResponse> running) {
+
+		try {
+			return running.get(inFlightTimeout, TimeUnit.MILLISECONDS);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof final RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (final TimeoutException e) {
+			throw new ConflictException(IN_PROGRESS_MESSAGE);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConflictException(IN_PROGRESS_MESSAGE);
+		}
+	}
+
+	private ResponseEntity<String> replay(final CachedResponse cached, final String fingerprint) {
+
+		if (!cached.fingerprint().equals(fingerprint)) {
+			throw new IdempotencyKeyReusedException("Idempotency-Key was already used for a different request");
+		}
+		return toResponse(cached.body(), true);
+	}
+
+	private ResponseEntity<String> toResponse(final String body, final boolean replayed) {
+
+		final ResponseEntity.BodyBuilder builder = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+		if (replayed) {
+			builder.header(REPLAYED_HEADER, Boolean.TRUE.toString());
+		}
+		return builder.body(body);
+	}
+
+	private String toJson(final Object value) {
+
+		try {
+			return objectMapper.writeValueAsString(value);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize response", e);
+		}
+	}
+
+	private record CachedResponse(String fingerprint, String body, long expiresAt) {
+	}
+
+	private record Claim(String token, long claimedAt) {
+	}
+}
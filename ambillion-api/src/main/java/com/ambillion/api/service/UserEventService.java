@@ -0,0 +1,387 @@
+package com.ambillion.api.service;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.ambillion.api.dto.UserEvent;
+import com.ambillion.api.enums.UserEventType;
+import com.ambillion.api.enums.UserStatus;
+import com.ambillion.api.exception.ServiceOverloadedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * The <code>UserEventService</code> pushes registration and approval status events to Server-Sent Events subscribers. Connections are held by
+ * async servlet requests, so idle subscribers cost no threads. Publishing only appends the event to a bounded queue per subscriber; a small
+ * writer pool drains the queues with at most one writer per subscriber. Servlet writes block, so a client that stops reading holds its writer
+ * until the write times out: {@link #checkStalledWriters()} drops such subscribers and lends the pool a replacement thread for as long as the
+ * write stays blocked. The last events are kept in a ring so reconnecting clients can resume from their <code>Last-Event-ID</code>.
+ */
+@Service
+@Log4j2
+public class UserEventService {
+
+	private static final int REPLAY_BUFFER_SIZE = 1024;
+	private static final int SUBSCRIBER_QUEUE_CAPACITY = 2 * REPLAY_BUFFER_SIZE;
+	private static final int MAX_EVENTS_PER_DRAIN = 64;
+	private static final String HEARTBEAT_COMMENT = "heartbeat";
+	private static final PendingEvent HEARTBEAT = new PendingEvent(0, null, null, null);
+
+	// ids start from the startup second so they keep increasing across restarts and stay below 2^53 for JavaScript clients
+	private static final int SEQUENCE_SHIFT = 20;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${user.events.timeout:1800000}")
+	private long emitterTimeout;
+
+	@Value("${user.events.retry-after:5}")
+	private int retryAfterSeconds;
+
+	@Value("${user.events.write-timeout:10000}")
+	private long writeTimeout;
+
+	@Value("${user.events.max-stalled-writers:16}")
+	private int maxStalledWriters;
+
+	private final int maxSubscribers;
+	private final int writerThreads;
+	private final ThreadPoolExecutor writerExecutor;
+	private int stalledWriters;
+	private final Map<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+	private final AtomicInteger subscriberCount = new AtomicInteger();
+	private final AtomicReferenceArray<PendingEvent> replayBuffer = new AtomicReferenceArray<>(REPLAY_BUFFER_SIZE);
+
+	private final Object sequenceLock = new Object();
+	private long lastEventId = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) << SEQUENCE_SHIFT;
+
+	public UserEventService(@Value("${user.events.max-subscribers:10000}") final int maxSubscribers,
+			@Value("${user.events.writer-threads:4}") final int writerThreads) {
+
+		this.maxSubscribers = maxSubscribers;
+		this.writerThreads = writerThreads;
+		// a subscriber has at most one drain task queued, so one slot per subscriber is enough
+		this.writerExecutor = new ThreadPoolExecutor(writerThreads, writerThreads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxSubscribers),
+				runnable -> {
+					final Thread thread = new Thread(runnable, "user-event-writer");
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	/**
+	 * Opens a stream of events. A <code>null</code> user id subscribes to the events of all users.
+	 */
+	public SseEmitter subscribe(final Long userId, final Long lastSeenEventId) {
+
+		if (subscriberCount.incrementAndGet() > maxSubscribers) {
+			subscriberCount.decrementAndGet();
+			throw new ServiceOverloadedException("Too many event subscribers", retryAfterSeconds);
+		}
+
+		final SseEmitter emitter = new SseEmitter(emitterTimeout);
+		final Subscriber subscriber = new Subscriber(emitter, userId);
+		emitter.onCompletion(subscriber::remove);
+		emitter.onTimeout(subscriber::remove);
+		emitter.onError(e -> subscriber.remove());
+
+		synchronized (sequenceLock) {
+			// replayed events are queued before any live event, publishing waits on the same lock
+			subscribers.put(emitter, subscriber);
+			if (lastSeenEventId != null) {
+				replay(subscriber, lastSeenEventId);
+			}
+		}
+		return emitter;
+	}
+
+	/**
+	 * Publishes an event to the subscribers. Inside a transaction the event is only sent after the commit.
+	 */
+	public void publish(final UserEventType type, final Long userId, final UserStatus status) {
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+
+				@Override
+				public void afterCommit() {
+
+					doPublish(type, userId, status);
+				}
+			});
+		} else {
+			doPublish(type, userId, status);
+		}
+	}
+
+	@Scheduled(fixedRateString = "${user.events.heartbeat-interval:15000}")
+	public void heartbeat() {
+
+		subscribers.values().forEach(subscriber -> subscriber.enqueue(HEARTBEAT));
+	}
+
+	/**
+	 * Drops subscribers whose write has been blocked for longer than the write timeout, so they are detected within twice the timeout.
+	 */
+	@Scheduled(fixedDelayString = "${user.events.write-timeout:10000}")
+	public void checkStalledWriters() {
+
+		final long now = System.nanoTime();
+		final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeout);
+		subscribers.values().forEach(subscriber -> subscriber.abandonIfStalled(now, timeoutNanos));
+	}
+
+	@PreDestroy
+	public void shutdown() {
+
+		writerExecutor.shutdownNow();
+		subscribers.values().forEach(Subscriber::close);
+	}
+
+	private void doPublish(final UserEventType type, final Long userId, final UserStatus status) {
+
+		synchronized (sequenceLock) {
+			final UserEvent event = new UserEvent(++lastEventId, type, userId, status, new Timestamp(System.currentTimeMillis()));
+			// serialized once per event instead of once per subscriber
+			final PendingEvent pendingEvent = new PendingEvent(event.id(), type.name(), userId, toJson(event));
+			replayBuffer.set(replayIndex(event.id()), pendingEvent);
+			subscribers.values().forEach(subscriber -> {
+				if (subscriber.accepts(pendingEvent)) {
+					subscriber.enqueue(pendingEvent);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Adds a writer thread while a stalled write holds one, up to <code>max-stalled-writers</code> extra threads.
+	 */
+	private synchronized boolean lendWriter() {
+
+		if (stalledWriters >= maxStalledWriters) {
+			return false;
+		}
+		stalledWriters++;
+		writerExecutor.setMaximumPoolSize(writerThreads + stalledWriters);
+		writerExecutor.setCorePoolSize(writerThreads + stalledWriters);
+		return true;
+	}
+
+	private synchronized void returnWriter() {
+
+		stalledWriters--;
+		writerExecutor.setCorePoolSize(writerThreads + stalledWriters);
+		writerExecutor.setMaximumPoolSize(writerThreads + stalledWriters);
+	}
+
+	private void replay(final Subscriber subscriber, final long lastSeenEventId) {
+
+		final long from = Math.max(lastSeenEventId + 1, lastEventId - REPLAY_BUFFER_SIZE + 1);
+		for (long id = from; id <= lastEventId; id++) {
+			final PendingEvent pendingEvent = replayBuffer.get(replayIndex(id));
+			if (pendingEvent != null && pendingEvent.id() == id && subscriber.accepts(pendingEvent)) {
+				subscriber.enqueue(pendingEvent);
+			}
+		}
+	}
+
+	private static int replayIndex(final long id) {
+
+		return (int) (id % REPLAY_BUFFER_SIZE);
+	}
+
+	private String toJson(final UserEvent event) {
+
+		try {
+			return objectMapper.writeValueAsString(event);
+		} catch (final JsonProcessingException e) {
+			throw new IllegalStateException("Could not serialize user event " + event.id(), e);
+		}
+	}
+
+	private record PendingEvent(long id, String name, Long userId, String payload) {
+
+		SseEmitter.SseEventBuilder toSseEvent() {
+
+			if (payload == null) {
+				return SseEmitter.event().comment(HEARTBEAT_COMMENT);
+			}
+			return SseEmitter.event().id(String.valueOf(id)).name(name).data(payload, MediaType.APPLICATION_JSON);
+		}
+	}
+
+	private final class Subscriber implements Runnable {
+
+		private final SseEmitter emitter;
+		private final Long userId;
+		private final BlockingQueue<PendingEvent> queue = new LinkedBlockingQueue<>(SUBSCRIBER_QUEUE_CAPACITY);
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final AtomicBoolean closed = new AtomicBoolean();
+		// guarded by this, a blocked write holds the emitter lock so closing must not wait on the emitter
+		private long writeStartedAt;
+		private boolean completeAfterWrite;
+		private boolean lentWriter;
+
+		Subscriber(final SseEmitter emitter, final Long userId) {
+
+			this.emitter = emitter;
+			this.userId = userId;
+		}
+
+		boolean accepts(final PendingEvent event) {
+
+			return userId == null || userId.equals(event.userId());
+		}
+
+		void enqueue(final PendingEvent event) {
+
+			if (closed.get()) {
+				return;
+			}
+			if (!queue.offer(event)) {
+				log.debug("Dropping user event subscriber, {} events queued", queue.size());
+				close();
+				return;
+			}
+			schedule();
+		}
+
+		@Override
+		public void run() {
+
+			for (int sent = 0; sent < MAX_EVENTS_PER_DRAIN; sent++) {
+				final PendingEvent event = queue.poll();
+				if (event == null) {
+					break;
+				}
+				if (!send(event)) {
+					return;
+				}
+			}
+			scheduled.set(false);
+			if (!queue.isEmpty()) {
+				// more events arrived, or the batch limit was hit; requeue to give other subscribers a turn
+				schedule();
+			}
+		}
+
+		boolean remove() {
+
+			if (!closed.compareAndSet(false, true)) {
+				return false;
+			}
+			subscribers.remove(emitter);
+			subscriberCount.decrementAndGet();
+			queue.clear();
+			return true;
+		}
+
+		void close() {
+
+			close(false);
+		}
+
+		void abandonIfStalled(final long now, final long timeoutNanos) {
+
+			synchronized (this) {
+				if (writeStartedAt == 0 || now - writeStartedAt <= timeoutNanos) {
+					return;
+				}
+			}
+			log.debug("Dropping user event subscriber, write blocked for more than {} ms", writeTimeout);
+			close(true);
+		}
+
+		/**
+		 * Removes the subscriber and completes the emitter. While a write is in progress the writer completes the emitter once the write
+		 * returns, and a stalled writer is covered by a lent thread meanwhile.
+		 */
+		private void close(final boolean stalled) {
+
+			if (!remove()) {
+				return;
+			}
+			synchronized (this) {
+				if (writeStartedAt != 0) {
+					completeAfterWrite = true;
+					lentWriter = stalled && lendWriter();
+					return;
+				}
+			}
+			emitter.complete();
+		}
+
+		private void schedule() {
+
+			if (!closed.get() && scheduled.compareAndSet(false, true)) {
+				try {
+					writerExecutor.execute(this);
+				} catch (final RejectedExecutionException e) {
+					close();
+				}
+			}
+		}
+
+		private boolean send(final PendingEvent event) {
+
+			synchronized (this) {
+				if (closed.get()) {
+					return false;
+				}
+				writeStartedAt = System.nanoTime();
+			}
+			try {
+				emitter.send(event.toSseEvent());
+				return true;
+			} catch (final IOException | IllegalStateException e) {
+				log.debug("Dropping user event subscriber: {}", e.getMessage());
+				close();
+				return false;
+			} finally {
+				finishWrite();
+			}
+		}
+
+		private void finishWrite() {
+
+			final boolean complete;
+			final boolean returnWriter;
+			synchronized (this) {
+				writeStartedAt = 0;
+				complete = completeAfterWrite;
+				returnWriter = lentWriter;
+			}
+			if (returnWriter) {
+				returnWriter();
+			}
+			if (complete) {
+				emitter.complete();
+			}
+		}
+	}
+}
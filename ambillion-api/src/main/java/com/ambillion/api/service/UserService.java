@@ -1,16 +1,29 @@
 package com.ambillion.api.service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.ambillion.api.dao.UserRepository;
+import com.ambillion.api.dto.AuditEventResponse;
+import com.ambillion.api.dto.UserResponse;
 import com.ambillion.api.entity.User;
+import com.ambillion.api.enums.AuditAction;
+import com.ambillion.api.enums.AuditEntityType;
 import com.ambillion.api.enums.Role;
+import com.ambillion.api.enums.UserEventType;
 import com.ambillion.api.enums.UserStatus;
+import com.ambillion.api.exception.ConflictException;
+import com.ambillion.api.exception.InvalidStateTransitionException;
+import com.ambillion.api.exception.ResourceNotFoundException;
 
 import lombok.extern.log4j.Log4j2;
 
@@ -24,9 +37,15 @@ public class UserService {
 	@Autowired
 	private BCryptPasswordEncoder passwordEncoder;
 
-	public List<User> getAllUsers() {
+	@Autowired
+	private AuditService auditService;
+
+	@Autowired
+	private UserEventService userEventService;
 
-		return userRepository.findAll();
+	public List<UserResponse> getAllUsers() {
+
+		return userRepository.findAllUserResponses();
 	}
 
 	public Optional<User> getUserById(final Long id) {
@@ -40,52 +59,81 @@ public class UserService {
 		return userRepository.save(user);
 	}
 
+	/**
+	 * Updates the profile fields of a user. Role and status are kept, status changes go through approve and reject. The password is only hashed
+	 * again when it changed.
+	 */
+	@Transactional
+	public User updateUser(final User existingUser, final User user) {
+
+		user.setRole(existingUser.getRole());
+		user.setStatus(existingUser.getStatus());
+		if (!Objects.equals(existingUser.getEmail(), user.getEmail())) {
+			checkEmailAvailable(user.getEmail());
+		}
+
+		final boolean passwordChanged = !passwordEncoder.matches(user.getPassword(), existingUser.getPassword());
+		final List<String> changedFields = getChangedFields(existingUser, user, passwordChanged);
+		user.setPassword(passwordChanged ? passwordEncoder.encode(user.getPassword()) : existingUser.getPassword());
+		final User savedUser = userRepository.save(user);
+
+		final String details = "changed: " + String.join(", ", changedFields);
+		if (passwordChanged) {
+			auditService.recordDurable(AuditEntityType.USER, savedUser.getId(), savedUser.getId(), AuditAction.PROFILE_UPDATED, details);
+		} else {
+			auditService.record(AuditEntityType.USER, savedUser.getId(), savedUser.getId(), AuditAction.PROFILE_UPDATED, details);
+		}
+		return savedUser;
+	}
+
+	@Transactional
 	public void deleteUser(final Long id) {
 
+		if (!userRepository.existsById(id)) {
+			throw new ResourceNotFoundException("User with ID " + id + " not found");
+		}
 		userRepository.deleteById(id);
+		auditService.recordDurable(AuditEntityType.USER, id, id, AuditAction.DELETED, null);
 	}
 
 	public User registerManufacturer(final User user) {
 
+		checkEmailAvailable(user.getEmail());
+
 		user.setRole(Role.MANUFACTURER);
 		user.setStatus(UserStatus.PENDING);
 
-		return saveUser(user);
+		final User savedUser = saveUser(user);
+		auditService.record(AuditEntityType.USER, savedUser.getId(), savedUser.getId(), AuditAction.CREATED, "role: " + Role.MANUFACTURER);
+		userEventService.publish(UserEventType.REGISTERED, savedUser.getId(), savedUser.getStatus());
+		return savedUser;
 	}
 
 	public User addAgent(final User user, final Role role, final String country) {
 
+		checkEmailAvailable(user.getEmail());
+
 		user.setRole(role);
 		user.setCountry(country);
 		user.setStatus(UserStatus.APPROVED);
 
-		return saveUser(user);
+		final User savedUser = saveUser(user);
+		auditService.record(AuditEntityType.USER, savedUser.getId(), savedUser.getId(), AuditAction.CREATED, "role: " + role);
+		return savedUser;
 	}
 
+	@Transactional
 	public void approveManufacturer(final Long userId) {
 
 		log.debug("Approving manufacturer with ID: {}", userId);
-		final Optional<User> optionalUser = userRepository.findById(userId);
-		if (optionalUser.isPresent()) {
-			final User user = optionalUser.get();
-			user.setStatus(UserStatus.APPROVED);
-			userRepository.save(user);
-		} else {
-			log.error("Manufacturer with ID {} not found", userId);
-		}
+		changeManufacturerStatus(userId, UserStatus.APPROVED);
 	}
 
+	@Transactional
 	public void rejectManufacturer(final Long userId) {
 
 		log.debug("Rejecting manufacturer with ID: {}", userId);
-		final Optional<User> optionalUser = userRepository.findById(userId);
-		if (optionalUser.isPresent()) {
-			final User user = optionalUser.get();
-			user.setStatus(UserStatus.REJECTED);
-			userRepository.save(user);
-		} else {
-			log.error("Manufacturer with ID {} not found", userId);
-		}
+		changeManufacturerStatus(userId, UserStatus.REJECTED);
 	}
 
 	public Optional<User> loginUser(final String email, final String password) {
@@ -100,4 +148,56 @@ public class UserService {
 		}
 		return Optional.empty();
 	}
+
+	private void changeManufacturerStatus(final Long userId, final UserStatus status) {
+
+		final User user = userRepository.findById(userId).filter(u -> u.getRole() == Role.MANUFACTURER)
+				.orElseThrow(() -> new ResourceNotFoundException("Manufacturer with ID " + userId + " not found"));
+		final UserStatus previousStatus = user.getStatus();
+		if (!previousStatus.canTransitionTo(status)) {
+			throw new InvalidStateTransitionException("Manufacturer with ID " + userId + " cannot change from " + previousStatus + " to " + status);
+		}
+
+		user.setStatus(status);
+		userRepository.save(user);
+		auditService.recordDurable(AuditEntityType.USER, userId, userId, AuditAction.STATUS_CHANGED, previousStatus + " -> " + status);
+		userEventService.publish(UserEventType.STATUS_CHANGED, userId, status);
+	}
+
+	public Page<AuditEventResponse> getUserAuditTrail(final Long userId, final Pageable pageable) {
+
+		return auditService.getUserAuditTrail(userId, pageable).map(AuditEventResponse::from);
+	}
+
+	private void checkEmailAvailable(final String email) {
+
+		// checked before hashing the password, the unique constraint still guards concurrent registrations
+		if (userRepository.existsByEmail(email)) {
+			throw new ConflictException("A user with email " + email + " already exists");
+		}
+	}
+
+	private List<String> getChangedFields(final User existingUser, final User user, final boolean passwordChanged) {
+
+		final List<String> changedFields = new ArrayList<>();
+		if (!Objects.equals(existingUser.getFirstName(), user.getFirstName())) {
+			changedFields.add("firstName");
+		}
+		if (!Objects.equals(existingUser.getLastName(), user.getLastName())) {
+			changedFields.add("lastName");
+		}
+		if (!Objects.equals(existingUser.getCompany(), user.getCompany())) {
+			changedFields.add("company");
+		}
+		if (!Objects.equals(existingUser.getEmail(), user.getEmail())) {
+			changedFields.add("email");
+		}
+		if (!Objects.equals(existingUser.getCountry(), user.getCountry())) {
+			changedFields.add("country");
+		}
+		if (passwordChanged) {
+			changedFields.add("password");
+		}
+		return changedFields;
+	}
 }
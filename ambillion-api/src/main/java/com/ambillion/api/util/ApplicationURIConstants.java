@@ -11,6 +11,9 @@ public class ApplicationURIConstants {
 
 	public static final String APPROVE_USER_API = "/{userId}/approve";
 	public static final String REJECT_USER_API = "/{userId}/reject";
+	public static final String AUDIT_USER_API = "/{userId}/audit";
+	public static final String EVENTS_API = "/events";
+	public static final String USER_EVENTS_API = "/{userId}/events";
 
 	public static final String LOGIN_API = "/login";
 
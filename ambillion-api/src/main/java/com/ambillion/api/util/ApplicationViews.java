@@ -1,11 +0,0 @@
-package com.ambillion.api.util;
-
-public class ApplicationViews {
-
-	public static class BaseView {
-	}
-
-	public static class DTOView extends BaseView {
-	}
-
-}
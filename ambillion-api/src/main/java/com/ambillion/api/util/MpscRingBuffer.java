@@ -0,0 +1,77 @@
+package com.ambillion.api.util;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The <code>MpscRingBuffer</code> is a bounded, lock-free ring buffer for many producer threads and a single consumer thread. Producers claim a slot
+ * with a CAS on the producer index and never block; when the buffer is full {@link #offer(Object)} returns <code>false</code> and the caller decides
+ * what to do with the element.
+ */
+public class MpscRingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> buffer;
+	private final AtomicLong producerIndex = new AtomicLong();
+	private final AtomicLong consumerIndex = new AtomicLong();
+
+	public MpscRingBuffer(final int requestedCapacity) {
+
+		if (requestedCapacity < 2) {
+			throw new IllegalArgumentException("Capacity must be at least 2");
+		}
+		final int capacity = Integer.highestOneBit(requestedCapacity - 1) << 1;
+		this.mask = capacity - 1;
+		this.buffer = new AtomicReferenceArray<>(capacity);
+	}
+
+	public boolean offer(final E element) {
+
+		if (element == null) {
+			throw new IllegalArgumentException("Null elements are not supported");
+		}
+		long index;
+		do {
+			index = producerIndex.get();
+			if (index - consumerIndex.get() > mask) {
+				return false;
+			}
+		} while (!producerIndex.compareAndSet(index, index + 1));
+
+		buffer.lazySet((int) index & mask, element);
+		return true;
+	}
+
+	/**
+	 * Moves up to <code>limit</code> published elements into <code>target</code>. Must only be called from one thread at a time.
+	 */
+	public int drainTo(final List<? super E> target, final int limit) {
+
+		long index = consumerIndex.get();
+		int drained = 0;
+		while (drained < limit) {
+			final int slot = (int) index & mask;
+			final E element = buffer.get(slot);
+			if (element == null) {
+				// either empty or the claiming producer has not published yet
+				break;
+			}
+			buffer.lazySet(slot, null);
+			consumerIndex.lazySet(++index);
+			target.add(element);
+			drained++;
+		}
+		return drained;
+	}
+
+	public int size() {
+
+		return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+	}
+
+	public int capacity() {
+
+		return mask + 1;
+	}
+}
@@ -3,6 +3,8 @@ package com.ambillion.api.util;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.ambillion.api.service.IdempotencyService;
+import com.ambillion.api.service.UserEventService;
 import com.ambillion.api.service.UserService;
 
 import lombok.Getter;
@@ -13,4 +15,10 @@ public class ServiceRegistry {
 
 	@Autowired
 	UserService userService;
+
+	@Autowired
+	UserEventService userEventService;
+
+	@Autowired
+	IdempotencyService idempotencyService;
 }
@@ -0,0 +1,169 @@
+package com.ambillion.api.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.ambillion.api.dto.UserResponse;
+import com.ambillion.api.enums.Role;
+import com.ambillion.api.enums.UserStatus;
+import com.ambillion.api.util.ApplicationConstants;
+import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import lombok.Data;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Compares serialized users per second of the former entity + <code>@JsonView</code> responses with the {@link UserResponse} records, using
+ * the application's {@link JsonFormatterConfig}. The timings only run with <code>mvn test -Pbenchmark</code> and are logged, the output shape
+ * is checked on every build.
+ */
+@Log4j2
+class JsonSerializationBenchmarkTest {
+
+	private static final int USERS = 1000;
+	private static final int WARMUP_ITERATIONS = 300;
+	private static final int MEASURED_ITERATIONS = 1000;
+
+	private static List<LegacyUser> legacyUsers;
+	private static List<UserResponse> userResponses;
+
+	@BeforeAll
+	static void createUsers() {
+
+		legacyUsers = new ArrayList<>(USERS);
+		userResponses = new ArrayList<>(USERS);
+		for (int i = 0; i < USERS; i++) {
+			final LegacyUser user = new LegacyUser();
+			user.setId((long) i);
+			user.setFirstName("First" + i);
+			user.setLastName("Last" + i);
+			user.setCompany("Company " + i);
+			user.setEmail("user" + i + "@example.com");
+			user.setPassword("$2a$10$7EqJtq98hPqEX7fNZaFWoOa5Vg0cVgJ6KQ0cKcV1p8yR0m6k3s9bC");
+			user.setRole(Role.MANUFACTURER);
+			user.setCountry("IN");
+			user.setRegisteredDate(new Timestamp(1_700_000_000_000L + i));
+			user.setStatus(UserStatus.PENDING);
+			user.setAuditTimestamp(new Timestamp(1_700_000_000_000L + i));
+			legacyUsers.add(user);
+
+			userResponses.add(new UserResponse(user.getId(), user.getFirstName(), user.getLastName(), user.getCompany(), user.getEmail(),
+					user.getRole(), user.getCountry(), user.getRegisteredDate(), user.getStatus()));
+		}
+	}
+
+	@Test
+	void serializesSameFieldsAsEntityViews() throws Exception {
+
+		final String legacyJson = plainObjectMapper().writerWithView(LegacyViews.DTOView.class).writeValueAsString(legacyUsers);
+		final String recordJson = applicationObjectMapper().writer().writeValueAsString(userResponses);
+
+		assertThat(legacyJson).doesNotContain("password").doesNotContain("auditTimestamp");
+		assertThat(recordJson).doesNotContain("password").doesNotContain("auditTimestamp").contains("\"status\":\"PENDING\"");
+	}
+
+	@Test
+	@Tag("benchmark")
+	void benchmarkUserSerialization() throws Exception {
+
+		final ObjectMapper plainMapper = plainObjectMapper();
+		final ObjectWriter legacyWriter = plainMapper.writerWithView(LegacyViews.DTOView.class);
+		final ObjectWriter recordWriter = plainMapper.writer();
+		final ObjectWriter blackbirdRecordWriter = applicationObjectMapper().writer();
+
+		report("entity + JsonView", measure(() -> legacyWriter.writeValueAsBytes(legacyUsers)));
+		report("record", measure(() -> recordWriter.writeValueAsBytes(userResponses)));
+		report("record + Blackbird", measure(() -> blackbirdRecordWriter.writeValueAsBytes(userResponses)));
+	}
+
+	/**
+	 * The application's settings without Blackbird, as before the response records.
+	 */
+	private static ObjectMapper plainObjectMapper() {
+
+		return Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule(), new JsonFormatterConfig().customDoubleSerializerModule())
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).timeZone(TimeZone.getDefault())
+				.simpleDateFormat(ApplicationConstants.DATE_FORMATTER).build();
+	}
+
+	private static ObjectMapper applicationObjectMapper() {
+
+		final Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		new JsonFormatterConfig().customizeObjectMapper().customize(builder);
+		final ObjectMapper mapper = builder.build();
+		assertThat(mapper.getRegisteredModuleIds()).contains(new BlackbirdModule().getTypeId());
+		return mapper;
+	}
+
+	private static long measure(final Serialization serialization) throws Exception {
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			serialization.run();
+		}
+		final long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+			serialization.run();
+		}
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		return (long) (MEASURED_ITERATIONS * (long) USERS / seconds);
+	}
+
+	private static void report(final String path, final long usersPerSecond) {
+
+		log.info(String.format("%-20s %,12d users/s", path, usersPerSecond));
+	}
+
+	@FunctionalInterface
+	private interface Serialization {
+
+		void run() throws Exception;
+	}
+
+	static class LegacyViews {
+
+		static class DTOView {
+		}
+	}
+
+	/**
+	 * Field layout and views of the <code>User</code> entity before the response records replaced it.
+	 */
+	@Data
+	static class LegacyUser {
+
+		@JsonView(LegacyViews.DTOView.class)
+		private Long id;
+		@JsonView(LegacyViews.DTOView.class)
+		private String firstName;
+		@JsonView(LegacyViews.DTOView.class)
+		private String lastName;
+		@JsonView(LegacyViews.DTOView.class)
+		private String company;
+		@JsonView(LegacyViews.DTOView.class)
+		private String email;
+		private String password;
+		@JsonView(LegacyViews.DTOView.class)
+		private Role role;
+		@JsonView(LegacyViews.DTOView.class)
+		private String country;
+		@JsonView(LegacyViews.DTOView.class)
+		private Date registeredDate;
+		private UserStatus status;
+		private Timestamp auditTimestamp;
+	}
+}
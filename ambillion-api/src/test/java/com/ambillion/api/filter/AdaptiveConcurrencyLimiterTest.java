@@ -0,0 +1,90 @@
+package com.ambillion.api.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+	private static final long FAST_RTT = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long SLOW_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+	@Test
+	void rejectsAcquireAtLimit() {
+
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10);
+
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isTrue();
+		assertThat(limiter.tryAcquire()).isFalse();
+		assertThat(limiter.getInFlight()).isEqualTo(2);
+
+		limiter.onSuccess(FAST_RTT);
+		assertThat(limiter.tryAcquire()).isTrue();
+	}
+
+	@Test
+	void growsLimitWhileLatencyIsSteady() {
+
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100);
+
+		for (int round = 0; round < 20; round++) {
+			runAtFullLoad(limiter, FAST_RTT);
+		}
+
+		assertThat(limiter.getLimit()).isGreaterThan(10);
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	@Test
+	void shrinksLimitWhenLatencyRises() {
+
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 1, 100);
+		limiter.tryAcquire();
+		limiter.onSuccess(FAST_RTT);
+
+		runAtFullLoad(limiter, SLOW_RTT);
+		final int limitAfterFirstRound = limiter.getLimit();
+		runAtFullLoad(limiter, SLOW_RTT);
+
+		assertThat(limitAfterFirstRound).isLessThan(25);
+		assertThat(limiter.getLimit()).isLessThanOrEqualTo(limitAfterFirstRound);
+	}
+
+	@Test
+	void backsOffOnDroppedRequest() {
+
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 100);
+		limiter.tryAcquire();
+
+		limiter.onDropped();
+
+		assertThat(limiter.getLimit()).isEqualTo(18);
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	@Test
+	void neverBacksOffBelowMinimum() {
+
+		final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 10);
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire();
+			limiter.onDropped();
+		}
+
+		assertThat(limiter.getLimit()).isEqualTo(2);
+	}
+
+	private static void runAtFullLoad(final AdaptiveConcurrencyLimiter limiter, final long rttNanos) {
+
+		int acquired = 0;
+		while (limiter.tryAcquire()) {
+			acquired++;
+		}
+		for (int i = 0; i < acquired; i++) {
+			limiter.onSuccess(rttNanos);
+		}
+	}
+}
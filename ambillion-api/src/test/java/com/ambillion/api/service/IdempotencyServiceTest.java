@@ -0,0 +1,225 @@
+package com.ambillion.api.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.ambillion.api.dao.IdempotencyRecordRepository;
+import com.ambillion.api.entity.IdempotencyRecord;
+import com.ambillion.api.exception.ConflictException;
+import com.ambillion.api.exception.IdempotencyKeyReusedException;
+
+/**
+ * Runs every call with one <code>EntityManager</code> bound to the thread, as <code>spring.jpa.open-in-view</code> does for a request, so
+ * records loaded by the service stay managed while it claims the key.
+ */
+@DataJpaTest(properties = { "idempotency.ttl=3600000", "idempotency.in-flight-timeout=60000", "idempotency.fingerprint-secret=test-secret" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(IdempotencyService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class IdempotencyServiceTest {
+
+	private static final long TTL = 3600000;
+	private static final long IN_FLIGHT_TIMEOUT = 60000;
+	private static final String STORED_BODY = "{\"id\":0}";
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private final AtomicInteger executions = new AtomicInteger();
+
+	@Test
+	void replaysStoredResponseOnRetry() {
+
+		final String key = newKey();
+
+		final ResponseEntity<String> first = executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register);
+		final ResponseEntity<String> retry = executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register);
+
+		assertThat(executions).hasValue(1);
+		assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+		assertThat(retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(retry.getBody()).isEqualTo(first.getBody());
+		assertThat(idempotencyRecordRepository.findById(key)).get().extracting(IdempotencyRecord::getResponseBody).isEqualTo(first.getBody());
+	}
+
+	@Test
+	void rejectsKeyReusedForDifferentRequest() {
+
+		final String key = newKey();
+		executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register);
+
+		assertThatThrownBy(() -> executeInRequest(key, new Registration("ann@example.com", "Other123!"), this::register))
+				.isInstanceOf(IdempotencyKeyReusedException.class);
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	void executesAgainAfterStoredResponseExpired() {
+
+		final String key = newKey();
+		final IdempotencyRecord expired = newRecord(key, System.currentTimeMillis() - TTL - 1000);
+		expired.setResponseBody(STORED_BODY);
+		idempotencyRecordRepository.saveAndFlush(expired);
+
+		final ResponseEntity<String> response = executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register);
+
+		assertThat(executions).hasValue(1);
+		assertThat(response.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+		final IdempotencyRecord stored = idempotencyRecordRepository.findById(key).orElseThrow();
+		assertThat(stored.getResponseBody()).isEqualTo(response.getBody());
+		assertThat(stored.getClaimToken()).isNotEqualTo(expired.getClaimToken());
+	}
+
+	@Test
+	void takesOverAbandonedClaim() {
+
+		final String key = newKey();
+		final IdempotencyRecord abandoned = idempotencyRecordRepository.saveAndFlush(newRecord(key, System.currentTimeMillis() - IN_FLIGHT_TIMEOUT - 1000));
+
+		final ResponseEntity<String> response = executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register);
+
+		assertThat(executions).hasValue(1);
+		final IdempotencyRecord stored = idempotencyRecordRepository.findById(key).orElseThrow();
+		assertThat(stored.getResponseBody()).isEqualTo(response.getBody());
+		assertThat(stored.getClaimToken()).isNotEqualTo(abandoned.getClaimToken());
+	}
+
+	@Test
+	void rejectsKeyClaimedByAnotherNode() {
+
+		final String key = newKey();
+		final IdempotencyRecord claim = idempotencyRecordRepository.saveAndFlush(newRecord(key, System.currentTimeMillis()));
+
+		assertThatThrownBy(() -> executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register))
+				.isInstanceOf(ConflictException.class);
+		assertThat(executions).hasValue(0);
+		assertThat(idempotencyRecordRepository.findById(key)).get().extracting(IdempotencyRecord::getClaimToken).isEqualTo(claim.getClaimToken());
+	}
+
+	@Test
+	void releasesClaimWhenActionFails() {
+
+		final String key = newKey();
+
+		assertThatThrownBy(() -> executeInRequest(key, new Registration("ann@example.com", "Secret123!"), () -> {
+			throw new IllegalStateException("registration failed");
+		})).isInstanceOf(IllegalStateException.class);
+		assertThat(idempotencyRecordRepository.findById(key)).isEmpty();
+
+		executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register);
+		assertThat(executions).hasValue(1);
+	}
+
+	@Test
+	void concurrentDuplicateWaitsForFirstRequest() throws Exception {
+
+		final String key = newKey();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicReference<ResponseEntity<String>> firstResponse = new AtomicReference<>();
+		final AtomicReference<ResponseEntity<String>> duplicateResponse = new AtomicReference<>();
+
+		final Thread first = new Thread(() -> firstResponse.set(executeInRequest(key, new Registration("ann@example.com", "Secret123!"), () -> {
+			started.countDown();
+			await(release);
+			return register();
+		})));
+		first.start();
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		final Thread duplicate = new Thread(
+				() -> duplicateResponse.set(executeInRequest(key, new Registration("ann@example.com", "Secret123!"), this::register)));
+		duplicate.start();
+		awaitWaiting(duplicate);
+		release.countDown();
+		first.join(5000);
+		duplicate.join(5000);
+
+		assertThat(executions).hasValue(1);
+		assertThat(duplicateResponse.get().getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+		assertThat(duplicateResponse.get().getBody()).isEqualTo(firstResponse.get().getBody());
+	}
+
+	private ResponseEntity<String> executeInRequest(final String key, final Registration registration, final Supplier<?> action) {
+
+		final EntityManager entityManager = entityManagerFactory.createEntityManager();
+		TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+		try {
+			final MockHttpServletRequest request = new MockHttpServletRequest("POST", "/amb/v1/api/user/register");
+			request.setServletPath("/v1/api/user/register");
+			return idempotencyService.execute(key, request, registration, action);
+		} finally {
+			TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+			entityManager.close();
+		}
+	}
+
+	private Registered register() {
+
+		return new Registered(executions.incrementAndGet());
+	}
+
+	private static IdempotencyRecord newRecord(final String key, final long createdAt) {
+
+		return new IdempotencyRecord(key, "fingerprint-of-another-request", UUID.randomUUID().toString(), new Timestamp(createdAt));
+	}
+
+	private static String newKey() {
+
+		return UUID.randomUUID().toString();
+	}
+
+	private static void await(final CountDownLatch latch) {
+
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void awaitWaiting(final Thread thread) throws InterruptedException {
+
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(thread.getState()).isEqualTo(Thread.State.TIMED_WAITING);
+	}
+
+	private record Registration(String email, String password) {
+	}
+
+	private record Registered(int id) {
+	}
+}
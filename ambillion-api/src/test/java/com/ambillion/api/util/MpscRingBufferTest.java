@@ -0,0 +1,94 @@
+package com.ambillion.api.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class MpscRingBufferTest {
+
+	@Test
+	void roundsCapacityUpToPowerOfTwo() {
+
+		assertThat(new MpscRingBuffer<Integer>(5).capacity()).isEqualTo(8);
+		assertThat(new MpscRingBuffer<Integer>(8).capacity()).isEqualTo(8);
+	}
+
+	@Test
+	void rejectsOfferWhenFull() {
+
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+		for (int i = 0; i < 4; i++) {
+			assertThat(buffer.offer(i)).isTrue();
+		}
+
+		assertThat(buffer.offer(4)).isFalse();
+		assertThat(buffer.size()).isEqualTo(4);
+
+		final List<Integer> drained = new ArrayList<>();
+		assertThat(buffer.drainTo(drained, 1)).isEqualTo(1);
+		assertThat(buffer.offer(4)).isTrue();
+	}
+
+	@Test
+	void keepsFifoOrderAcrossWrapAround() {
+
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+		final List<Integer> drained = new ArrayList<>();
+		int next = 0;
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 3; i++) {
+				assertThat(buffer.offer(next++)).isTrue();
+			}
+			buffer.drainTo(drained, 3);
+		}
+		buffer.drainTo(drained, Integer.MAX_VALUE);
+
+		assertThat(drained).hasSize(next);
+		for (int i = 0; i < next; i++) {
+			assertThat(drained.get(i)).isEqualTo(i);
+		}
+		assertThat(buffer.size()).isZero();
+	}
+
+	@Test
+	void deliversEveryElementFromConcurrentProducers() throws InterruptedException {
+
+		final int producers = 4;
+		final int perProducer = 50_000;
+		final MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1024);
+		final ExecutorService executor = Executors.newFixedThreadPool(producers);
+		final CountDownLatch done = new CountDownLatch(producers);
+
+		for (int p = 0; p < producers; p++) {
+			final int base = p * perProducer;
+			executor.execute(() -> {
+				for (int i = 0; i < perProducer; i++) {
+					while (!buffer.offer(base + i)) {
+						Thread.onSpinWait();
+					}
+				}
+				done.countDown();
+			});
+		}
+
+		final List<Integer> drained = new ArrayList<>(producers * perProducer);
+		while (drained.size() < producers * perProducer) {
+			buffer.drainTo(drained, 256);
+		}
+		assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+		executor.shutdown();
+
+		final Set<Integer> unique = new HashSet<>(drained);
+		assertThat(unique).hasSize(producers * perProducer);
+		assertThat(buffer.size()).isZero();
+	}
+}